@@ -1,9 +1,54 @@
 import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 
 public class StudentRecordSystem {
 
+    // The charset students.txt is written in (FileWriter, i.e. the platform
+    // default); tools that read or write roster files use the same one
+    public static final Charset FILE_CHARSET = Charset.defaultCharset();
+
+    // Bytes that are not valid in FILE_CHARSET fail the read instead of being
+    // silently replaced, so a tool never writes damaged records back out
+    static BufferedReader openReader(Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(path), FILE_CHARSET.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)));
+    }
+
+    static BufferedWriter openWriter(Path path) throws IOException {
+        return Files.newBufferedWriter(path, FILE_CHARSET);
+    }
+
     // Abstract Person
 
     public static abstract class Person {
@@ -43,16 +88,21 @@ public class StudentRecordSystem {
         public void setName(String name) { this.name = name; }
         public void setEmail(String email) { this.email = email; }
         public void setCourse(String course) { this.course = course; }
+        // marks are kept to two decimal places, so the grade and the marks history always agree
         public void setMarks(double marks) {
-            this.marks = marks;
+            this.marks = Math.round(marks * 100) / 100.0;
             calculateGrade();
         }
 
         public void calculateGrade() {
-            if (marks >= 85) grade = "A";
-            else if (marks >= 70) grade = "B";
-            else if (marks >= 50) grade = "C";
-            else grade = "D";
+            grade = gradeFor(marks);
+        }
+
+        public static String gradeFor(double marks) {
+            if (marks >= 85) return "A";
+            else if (marks >= 70) return "B";
+            else if (marks >= 50) return "C";
+            else return "D";
         }
 
         public void displayDetails() {
@@ -75,9 +125,31 @@ public class StudentRecordSystem {
             return rollNo + "," + escapeComma(name) + "," + escapeComma(email) + "," + escapeComma(course) + "," + marks;
         }
 
+        /** Detached copy, so change events keep the values they were published with */
+        public Student copy() {
+            return new Student(rollNo, name, email, course, marks);
+        }
+
         private String escapeComma(String s) {
             return s.replace(",", ""); // simple approach: strip commas to avoid CSV issues
         }
+
+        /** Parse a line written by toCSV(); returns null for a malformed line */
+        public static Student fromCSV(String line) {
+            // split into exactly 5 parts: roll,name,email,course,marks
+            String[] parts = line.split(",", 5);
+            if (parts.length < 5) return null;
+            try {
+                int roll = Integer.parseInt(parts[0].trim());
+                String name = parts[1].trim();
+                String email = parts[2].trim();
+                String course = parts[3].trim();
+                double marks = Double.parseDouble(parts[4].trim());
+                return new Student(roll, name, email, course, marks);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
     }
 
     // Interface RecordActions
@@ -115,16 +187,645 @@ public class StudentRecordSystem {
         }
     }
 
+    // Change events (add / update / delete) published by StudentManager
+
+    public static enum ChangeType { ADD, UPDATE, DELETE }
+
+    public static class ChangeEvent {
+        private final ChangeType type;
+        private final int rollNo;
+        private final Student before; // null for ADD
+        private final Student after;  // null for DELETE
+        private long seq = -1;        // assigned by ChangeFeed.publish
+
+        public ChangeEvent(ChangeType type, int rollNo, Student before, Student after) {
+            this.type = type;
+            this.rollNo = rollNo;
+            this.before = before;
+            this.after = after;
+        }
+
+        public ChangeType getType() { return type; }
+        public int getRollNo() { return rollNo; }
+        public Student getBefore() { return before; }
+        public Student getAfter() { return after; }
+        public long getSeq() { return seq; }
+
+        /**
+         * Fold a newer event for the same roll into this one.
+         * Returns null when the two cancel out (added then deleted).
+         */
+        public ChangeEvent merge(ChangeEvent newer) {
+            Student first = before;
+            Student last = newer.after;
+            if (first == null && last == null) return null;
+            ChangeType t = first == null ? ChangeType.ADD : (last == null ? ChangeType.DELETE : ChangeType.UPDATE);
+            ChangeEvent merged = new ChangeEvent(t, rollNo, first, last);
+            merged.seq = newer.seq;
+            return merged;
+        }
+
+        @Override
+        public String toString() {
+            return type + " roll " + rollNo
+                    + (before != null ? " before=[" + before.toCSV() + "]" : "")
+                    + (after != null ? " after=[" + after.toCSV() + "]" : "");
+        }
+    }
+
+    // What a subscriber wants when it falls a full ring behind the publisher
+    public static enum Backpressure { BLOCK, DROP, COALESCE }
+
+    /**
+     * Bounded ring buffer of change events. Every subscriber has its own cursor
+     * into the ring and reads events in batches; a slow subscriber either blocks
+     * the publisher, loses its oldest events, or has them coalesced per rollNo.
+     */
+    public static class ChangeFeed {
+        private final ChangeEvent[] ring;
+        private long head = 0; // sequence number of the next event to publish
+        private final List<Subscription> subscribers = new ArrayList<>();
+
+        public ChangeFeed(int capacity) {
+            if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+            this.ring = new ChangeEvent[capacity];
+        }
+
+        private int slot(long seq) { return (int) (seq % ring.length); }
+
+        public synchronized Subscription subscribe(Backpressure policy) {
+            Subscription s = new Subscription(policy, head);
+            subscribers.add(s);
+            return s;
+        }
+
+        /**
+         * Subscribe starting at an earlier sequence number, for a reader that is
+         * resuming. Returns null if those events have already left the ring.
+         */
+        public synchronized Subscription subscribeFrom(long seq, Backpressure policy) {
+            if (seq < 0 || seq > head || head - seq > ring.length) return null;
+            Subscription s = new Subscription(policy, seq);
+            subscribers.add(s);
+            return s;
+        }
+
+        /**
+         * Subscribe and hand batches to the consumer on a background thread;
+         * closing the subscription stops the thread.
+         */
+        public Subscription subscribe(Backpressure policy, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+            Subscription s = subscribe(policy);
+            Thread t = new Thread(new Dispatcher(s, batchSize, consumer), "change-feed-dispatcher");
+            t.setDaemon(true);
+            synchronized (this) {
+                s.dispatcher = t;
+            }
+            t.start();
+            return s;
+        }
+
+        public synchronized void publish(ChangeEvent e) throws InterruptedException {
+            while (true) {
+                boolean blocked = false;
+                for (Subscription s : subscribers) {
+                    if (s.closed || head - s.cursor < ring.length) continue;
+                    // the slot we are about to overwrite is still unread by s
+                    switch (s.policy) {
+                        case BLOCK -> blocked = true;
+                        case DROP -> { s.cursor++; s.dropped++; }
+                        case COALESCE -> { s.coalesce(ring[slot(s.cursor)]); s.cursor++; }
+                    }
+                }
+                if (!blocked) break;
+                wait();
+            }
+            e.seq = head;
+            ring[slot(head)] = e;
+            head++;
+            notifyAll();
+        }
+
+        public synchronized long getPublishedCount() { return head; }
+
+        public class Subscription {
+            private final Backpressure policy;
+            private long cursor;
+            private long dropped = 0;
+            private boolean closed = false;
+            private Thread dispatcher; // set when a Dispatcher feeds a consumer
+            // events folded out of the ring for a lagging COALESCE subscriber, oldest first
+            private final LinkedHashMap<Integer, ChangeEvent> pending = new LinkedHashMap<>();
+
+            private Subscription(Backpressure policy, long cursor) {
+                this.policy = policy;
+                this.cursor = cursor;
+            }
+
+            private void coalesce(ChangeEvent e) {
+                ChangeEvent old = pending.remove(e.getRollNo());
+                ChangeEvent merged = old == null ? e : old.merge(e);
+                if (merged != null) pending.put(e.getRollNo(), merged);
+            }
+
+            /**
+             * Wait up to timeoutMillis for at least one event, then return up to
+             * maxBatch of them in publish order. Returns an empty list on timeout
+             * or once the subscription is closed.
+             */
+            public List<ChangeEvent> poll(int maxBatch, long timeoutMillis) throws InterruptedException {
+                synchronized (ChangeFeed.this) {
+                    long deadline = System.currentTimeMillis() + timeoutMillis;
+                    while (!closed && pending.isEmpty() && cursor == head) {
+                        long left = deadline - System.currentTimeMillis();
+                        if (left <= 0) return Collections.emptyList();
+                        ChangeFeed.this.wait(left);
+                    }
+                    List<ChangeEvent> batch = new ArrayList<>();
+                    if (closed) return batch;
+
+                    Iterator<ChangeEvent> it = pending.values().iterator();
+                    while (it.hasNext() && batch.size() < maxBatch) {
+                        batch.add(it.next());
+                        it.remove();
+                    }
+                    while (cursor < head && batch.size() < maxBatch) {
+                        batch.add(ring[slot(cursor)]);
+                        cursor++;
+                    }
+                    ChangeFeed.this.notifyAll(); // a blocked publisher may have room now
+                    return batch;
+                }
+            }
+
+            /** Events published but not yet read by this subscriber */
+            public long getLag() {
+                synchronized (ChangeFeed.this) {
+                    return (head - cursor) + pending.size();
+                }
+            }
+
+            /** Events lost under the DROP policy */
+            public long getDropped() {
+                synchronized (ChangeFeed.this) {
+                    return dropped;
+                }
+            }
+
+            public boolean isClosed() {
+                synchronized (ChangeFeed.this) {
+                    return closed;
+                }
+            }
+
+            public void close() {
+                Thread t;
+                synchronized (ChangeFeed.this) {
+                    closed = true;
+                    subscribers.remove(this);
+                    pending.clear();
+                    t = dispatcher;
+                    ChangeFeed.this.notifyAll();
+                }
+                // a consumer closing its own subscription just lets the loop end
+                if (t != null && t != Thread.currentThread()) t.interrupt();
+            }
+        }
+    }
+
+    // Background thread that pulls batches for a subscriber and hands them on
+    public static class Dispatcher implements Runnable {
+        private final ChangeFeed.Subscription subscription;
+        private final int batchSize;
+        private final Consumer<List<ChangeEvent>> consumer;
+
+        public Dispatcher(ChangeFeed.Subscription subscription, int batchSize, Consumer<List<ChangeEvent>> consumer) {
+            this.subscription = subscription;
+            this.batchSize = batchSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!subscription.isClosed() && !Thread.currentThread().isInterrupted()) {
+                    List<ChangeEvent> batch = subscription.poll(batchSize, 1000);
+                    if (!batch.isEmpty()) consumer.accept(batch);
+                }
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    // Bloom filter: "definitely absent" answers without touching the exact sets
+
+    public static class BloomFilter {
+        private final long[] bits;
+        private final int numBits;
+        private final int numHashes;
+
+        /** Sized for expectedItems entries at roughly a 1% false-positive rate */
+        public BloomFilter(int expectedItems) {
+            int n = Math.max(expectedItems, 64);
+            long m = (long) Math.ceil(-n * Math.log(0.01) / (Math.log(2) * Math.log(2)));
+            this.numBits = (int) Math.min(m, Integer.MAX_VALUE - 63);
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+            this.bits = new long[(numBits + 63) / 64];
+        }
+
+        // double hashing: probe i is h1 + i*h2
+        public void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < numHashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        public boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < numHashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit finalizer (MurmurHash3 fmix64)
+        public static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        // FNV-1a over the chars, then mixed
+        public static long hash(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        }
+    }
+
+    /**
+     * Uniqueness of rollNo and (case-folded) email. Bloom filters answer the common
+     * "not taken" case; a hit is confirmed against exact hash sets. The filters are
+     * rebuilt from the exact sets when they outgrow their sizing or after many removals.
+     */
+    public static class UniquenessIndex {
+        private final Set<Integer> rolls = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private BloomFilter rollFilter;
+        private BloomFilter emailFilter;
+        private int capacity;
+        private int removedSinceRebuild = 0;
+
+        public UniquenessIndex() {
+            resize(1024);
+        }
+
+        public static String foldEmail(String email) {
+            return email.trim().toLowerCase(Locale.ROOT);
+        }
+
+        private static long rollHash(int roll) { return BloomFilter.mix(roll); }
+
+        private void resize(int newCapacity) {
+            capacity = newCapacity;
+            rollFilter = new BloomFilter(capacity);
+            emailFilter = new BloomFilter(capacity);
+            for (int r : rolls) rollFilter.add(rollHash(r));
+            for (String e : emails) emailFilter.add(BloomFilter.hash(e));
+            removedSinceRebuild = 0;
+        }
+
+        /** Replace the index contents with the given roster */
+        public synchronized void rebuild(Collection<Student> students) {
+            rolls.clear();
+            emails.clear();
+            for (Student s : students) {
+                rolls.add(s.getRollNo());
+                emails.add(foldEmail(s.getEmail()));
+            }
+            resize(Math.max(1024, students.size() * 2));
+        }
+
+        public synchronized boolean isRollTaken(int roll) {
+            return rollFilter.mightContain(rollHash(roll)) && rolls.contains(roll);
+        }
+
+        public synchronized boolean isEmailTaken(String email) {
+            String e = foldEmail(email);
+            return emailFilter.mightContain(BloomFilter.hash(e)) && emails.contains(e);
+        }
+
+        /** Record a new student; caller has already checked both keys are free */
+        public synchronized void add(Student s) {
+            rolls.add(s.getRollNo());
+            String e = foldEmail(s.getEmail());
+            emails.add(e);
+            if (Math.max(rolls.size(), emails.size()) > capacity) {
+                resize(capacity * 2);
+            } else {
+                rollFilter.add(rollHash(s.getRollNo()));
+                emailFilter.add(BloomFilter.hash(e));
+            }
+        }
+
+        public synchronized void remove(Student s) {
+            rolls.remove(s.getRollNo());
+            emails.remove(foldEmail(s.getEmail()));
+            // removed keys stay set in the filters; rebuild once they start costing lookups
+            if (++removedSinceRebuild > capacity / 4) resize(capacity);
+        }
+
+        public synchronized void changeEmail(String oldEmail, String newEmail) {
+            emails.remove(foldEmail(oldEmail));
+            String e = foldEmail(newEmail);
+            emails.add(e);
+            emailFilter.add(BloomFilter.hash(e));
+            if (++removedSinceRebuild > capacity / 4) resize(capacity);
+        }
+    }
+
+    // ------------------------------
+    // Marks history: every marks change, delta-encoded
+    // ------------------------------
+
+    public static class MarkChange {
+        private final long time;   // epoch seconds
+        private final double marks;
+
+        public MarkChange(long time, double marks) {
+            this.time = time;
+            this.marks = marks;
+        }
+
+        public long getTime() { return time; }
+        public double getMarks() { return marks; }
+    }
+
+    /**
+     * Marks changes for one student, oldest first. Each change is stored as two
+     * varints in a byte array: seconds since the previous change, and the zigzag
+     * difference in hundredths of a mark. A typical change costs 3-5 bytes.
+     * Student.setMarks already rounds to two decimal places, so this is exact.
+     */
+    public static class MarksHistory {
+        private byte[] data = new byte[8];
+        private int size = 0;       // bytes used
+        private int count = 0;      // changes stored
+        private long lastTime = 0;
+        private long lastCenti = 0;
+
+        public int getCount() { return count; }
+        public int getSizeInBytes() { return size; }
+        public double getLatestMarks() { return count == 0 ? Double.NaN : lastCenti / 100.0; }
+
+        public void append(long time, double marks) {
+            long centi = Math.round(marks * 100);
+            if (count > 0 && centi == lastCenti) return; // not a change
+            long dt = Math.max(0, time - lastTime);     // clock going backwards is recorded as "same time"
+            long dv = centi - lastCenti;
+            writeVarLong(dt);
+            writeVarLong((dv << 1) ^ (dv >> 63));
+            lastTime += dt;
+            lastCenti = centi;
+            count++;
+        }
+
+        /** Marks in effect at the given time, or NaN if there were none yet */
+        public double marksAsOf(long time) {
+            double result = Double.NaN;
+            int[] pos = {0};
+            long t = 0, v = 0;
+            for (int i = 0; i < count; i++) {
+                t += readVarLong(pos);
+                long z = readVarLong(pos);
+                v += (z >>> 1) ^ -(z & 1);
+                if (t > time) break;
+                result = v / 100.0;
+            }
+            return result;
+        }
+
+        /** Changes with from <= time <= to */
+        public List<MarkChange> changesBetween(long from, long to) {
+            List<MarkChange> out = new ArrayList<>();
+            int[] pos = {0};
+            long t = 0, v = 0;
+            for (int i = 0; i < count; i++) {
+                t += readVarLong(pos);
+                long z = readVarLong(pos);
+                v += (z >>> 1) ^ -(z & 1);
+                if (t > to) break;
+                if (t >= from) out.add(new MarkChange(t, v / 100.0));
+            }
+            return out;
+        }
+
+        private void writeVarLong(long v) {
+            if (size + 10 > data.length) data = Arrays.copyOf(data, Math.max(data.length + (data.length >> 1), size + 10));
+            while ((v & ~0x7FL) != 0) {
+                data[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[size++] = (byte) v;
+        }
+
+        private long readVarLong(int[] pos) {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos[0]++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            out.writeLong(lastTime);
+            out.writeLong(lastCenti);
+            out.writeInt(size);
+            out.write(data, 0, size);
+        }
+
+        // far more than any real history; keeps a damaged length from allocating gigabytes
+        private static final int MAX_BYTES = 1 << 24;
+
+        static MarksHistory readFrom(DataInputStream in) throws IOException {
+            MarksHistory h = new MarksHistory();
+            h.count = in.readInt();
+            h.lastTime = in.readLong();
+            h.lastCenti = in.readLong();
+            h.size = in.readInt();
+            // every change takes at least two bytes
+            if (h.size < 0 || h.size > MAX_BYTES || h.count < 0 || h.count > h.size / 2) {
+                throw new IOException("Corrupt marks history (count " + h.count + ", size " + h.size + ")");
+            }
+            h.data = new byte[Math.max(8, h.size)];
+            in.readFully(h.data, 0, h.size);
+            h.verify();
+            return h;
+        }
+
+        // Decode everything once with bounds checks, so later queries cannot run off the end
+        private void verify() throws IOException {
+            int pos = 0;
+            long t = 0, v = 0;
+            for (int i = 0; i < count; i++) {
+                for (int field = 0; field < 2; field++) {
+                    long x = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        if (pos >= size || shift > 63) throw new IOException("Corrupt marks history data");
+                        b = data[pos++];
+                        x |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while ((b & 0x80) != 0);
+                    if (field == 0) t += x;
+                    else v += (x >>> 1) ^ -(x & 1);
+                }
+            }
+            if (pos != size || t != lastTime || v != lastCenti) throw new IOException("Corrupt marks history data");
+        }
+    }
+
+    // Marks histories for the whole roster, keyed by roll number
+    public static class MarksLedger {
+        private final Map<Integer, MarksHistory> histories = new HashMap<>();
+
+        public static long now() { return System.currentTimeMillis() / 1000; }
+
+        public synchronized void record(int roll, double marks, long time) {
+            histories.computeIfAbsent(roll, r -> new MarksHistory()).append(time, marks);
+        }
+
+        public synchronized void forget(int roll) { histories.remove(roll); }
+
+        public synchronized MarksHistory get(int roll) { return histories.get(roll); }
+
+        /**
+         * Copies of the given students with their marks (and so grade) as of the
+         * given time. Students who had no marks yet at that time are left out.
+         */
+        public synchronized List<Student> snapshotAsOf(Collection<Student> roster, long time) {
+            List<Student> out = new ArrayList<>();
+            for (Student s : roster) {
+                MarksHistory h = histories.get(s.getRollNo());
+                double m = h == null ? Double.NaN : h.marksAsOf(time);
+                if (Double.isNaN(m)) continue;
+                Student c = s.copy();
+                c.setMarks(m);
+                out.add(c);
+            }
+            return out;
+        }
+
+        public synchronized long totalBytes() {
+            long n = 0;
+            for (MarksHistory h : histories.values()) n += h.getSizeInBytes();
+            return n;
+        }
+
+        public synchronized long totalChanges() {
+            long n = 0;
+            for (MarksHistory h : histories.values()) n += h.getCount();
+            return n;
+        }
+
+        private static final int MAGIC = 0x4D484953; // "MHIS"
+        private static final int VERSION = 1;
+
+        /** Write to a temp file and move it into place, so a crash never leaves a partial ledger */
+        public synchronized void save(String path) throws IOException {
+            Path target = Paths.get(path);
+            Path tmp = Paths.get(path + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(histories.size());
+                for (Map.Entry<Integer, MarksHistory> e : histories.entrySet()) {
+                    out.writeInt(e.getKey());
+                    e.getValue().writeTo(out);
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        /** Replace the ledger with the file's contents; on any error the ledger is left unchanged */
+        public synchronized void load(String path) throws IOException {
+            Map<Integer, MarksHistory> loaded = new HashMap<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+                if (in.readInt() != MAGIC) throw new IOException("Not a marks history file");
+                int version = in.readInt();
+                if (version != VERSION) throw new IOException("Unsupported marks history version " + version);
+                int n = in.readInt();
+                if (n < 0) throw new IOException("Corrupt marks history (" + n + " entries)");
+                for (int i = 0; i < n; i++) {
+                    int roll = in.readInt();
+                    loaded.put(roll, MarksHistory.readFrom(in));
+                }
+                if (in.read() != -1) throw new IOException("Unexpected data after marks history");
+            } catch (EOFException e) {
+                throw new IOException("Marks history file is truncated");
+            }
+            histories.clear();
+            histories.putAll(loaded);
+        }
+    }
+
     // StudentManager Implementation
 
     public static class StudentManager implements RecordActions {
-        private final Map<Integer, Student> studentMap = new HashMap<>();
+        // concurrent so replication sessions can snapshot while the menu thread writes
+        private final Map<Integer, Student> studentMap;
         private final Scanner sc;
         private final String FILE_PATH = "students.txt";
+        private final String HISTORY_PATH = "marks_history.dat";
+        private final ChangeFeed changeFeed = new ChangeFeed(1024);
+        private final UniquenessIndex uniqueness = new UniquenessIndex();
+        private final MarksLedger ledger = new MarksLedger();
+        private final boolean readOnly;
 
         public StudentManager(Scanner sc) {
             this.sc = sc;
+            this.studentMap = new ConcurrentHashMap<>();
+            this.readOnly = false;
             loadFromFile();
+            loadHistory();
+            uniqueness.rebuild(studentMap.values());
+        }
+
+        /** Read-only manager over a roster owned by someone else (a replication follower) */
+        public StudentManager(Scanner sc, Map<Integer, Student> roster) {
+            this.sc = sc;
+            this.studentMap = roster;
+            this.readOnly = true;
+        }
+
+        public Map<Integer, Student> getStudentMap() { return studentMap; }
+
+        private boolean rejectIfReadOnly() {
+            if (readOnly) System.out.println("This is a read-only follower; make changes on the primary.");
+            return readOnly;
         }
 
         // Load existing records from file (if present)
@@ -136,28 +837,107 @@ public class StudentRecordSystem {
                 String line;
                 while ((line = br.readLine()) != null) {
                     if (line.trim().isEmpty()) continue;
-                    // split into exactly 5 parts: roll,name,email,course,marks
-                    String[] parts = line.split(",", 5);
-                    if (parts.length < 5) continue;
-                    try {
-                        int roll = Integer.parseInt(parts[0].trim());
-                        String name = parts[1].trim();
-                        String email = parts[2].trim();
-                        String course = parts[3].trim();
-                        double marks = Double.parseDouble(parts[4].trim());
-                        Student s = new Student(roll, name, email, course, marks);
-                        studentMap.put(roll, s);
-                    } catch (NumberFormatException ignored) {
-                        // skip malformed line
-                    }
+                    Student s = Student.fromCSV(line);
+                    if (s == null) continue; // skip malformed line
+                    studentMap.put(s.getRollNo(), s);
                 }
             } catch (IOException e) {
                 System.out.println("Failed to load saved students: " + e.getMessage());
             }
         }
 
+        public ChangeFeed getChangeFeed() { return changeFeed; }
+
+        // Publish a change; BLOCK subscribers can make this wait
+        private void publish(ChangeType type, int roll, Student before, Student after) {
+            try {
+                changeFeed.publish(new ChangeEvent(type, roll, before, after));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                System.out.println("Change event for roll " + roll + " not published: interrupted.");
+            }
+        }
+
+        /**
+         * Bulk-add students from a CSV file in the students.txt format. Rows whose
+         * roll number or email is already taken (in the roster or earlier in the
+         * same file) are skipped and counted.
+         */
+        public void importFromFile(String path) {
+            if (rejectIfReadOnly()) return;
+            int added = 0, duplicates = 0, malformed = 0;
+            try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    Student s = Student.fromCSV(line);
+                    if (s == null || s.getMarks() < 0 || s.getMarks() > 100) {
+                        malformed++;
+                        continue;
+                    }
+                    if (uniqueness.isRollTaken(s.getRollNo()) || uniqueness.isEmailTaken(s.getEmail())) {
+                        duplicates++;
+                        continue;
+                    }
+                    uniqueness.add(s);
+                    studentMap.put(s.getRollNo(), s);
+                    ledger.record(s.getRollNo(), s.getMarks(), MarksLedger.now());
+                    publish(ChangeType.ADD, s.getRollNo(), null, s.copy());
+                    added++;
+                }
+            } catch (IOException e) {
+                System.out.println("Error importing from file: " + e.getMessage());
+            }
+            System.out.println("Imported " + added + " student(s); skipped " + duplicates
+                    + " duplicate(s) and " + malformed + " malformed line(s).");
+        }
+
+        public void generateReportCards() {
+            if (studentMap.isEmpty()) {
+                System.out.println("No students to report on.");
+                return;
+            }
+            System.out.print("One file per (1) Student or (2) Course? Enter 1 or 2: ");
+            int choice = readInt();
+            ReportCardGenerator.Layout layout = choice == 2
+                    ? ReportCardGenerator.Layout.PER_COURSE : ReportCardGenerator.Layout.PER_STUDENT;
+            try {
+                new ReportCardGenerator(Paths.get("reports"), layout, ForkJoinPool.commonPool())
+                        .generate(studentMap.values());
+            } catch (IOException e) {
+                System.out.println("Error writing report cards: " + e.getMessage());
+            }
+        }
+
+        // Load marks history; students whose saved marks are not the latest in it
+        // (or who have no history) get their current marks recorded as of the
+        // roster file's last save
+        private void loadHistory() {
+            File h = new File(HISTORY_PATH);
+            if (h.exists()) {
+                try {
+                    ledger.load(HISTORY_PATH);
+                } catch (IOException | RuntimeException e) {
+                    // history is a nice-to-have: start a new one, but keep the old file for inspection
+                    System.out.println("Marks history unavailable (" + e.getMessage() + "); starting a new history.");
+                    try {
+                        Files.move(h.toPath(), Paths.get(HISTORY_PATH + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+                        System.out.println("The unreadable file was kept as " + HISTORY_PATH + ".bad");
+                    } catch (IOException moveFailed) {
+                        System.out.println("Could not set aside " + HISTORY_PATH + ": " + moveFailed.getMessage());
+                    }
+                }
+            }
+            File f = new File(FILE_PATH);
+            long savedAt = f.exists() ? f.lastModified() / 1000 : MarksLedger.now();
+            for (Student s : studentMap.values()) {
+                ledger.record(s.getRollNo(), s.getMarks(), savedAt);
+            }
+        }
+
         // Save to file (use loader thread to simulate saving time)
         public void saveToFile() {
+            if (rejectIfReadOnly()) return;
             Thread t = new Thread(new Loader("Saving"));
             t.start();
             try { t.join(); } catch (InterruptedException ignored) {}
@@ -171,15 +951,22 @@ public class StudentRecordSystem {
             } catch (IOException e) {
                 System.out.println("Error saving to file: " + e.getMessage());
             }
+
+            try {
+                ledger.save(HISTORY_PATH);
+            } catch (IOException e) {
+                System.out.println("Error saving marks history: " + e.getMessage());
+            }
         }
 
         @Override
         public void addStudent() {
+            if (rejectIfReadOnly()) return;
             try {
                 System.out.print("Enter Roll No: ");
                 int roll = readInt();
 
-                if (studentMap.containsKey(roll)) {
+                if (uniqueness.isRollTaken(roll)) {
                     System.out.println("A student with this roll number already exists.");
                     return;
                 }
@@ -189,6 +976,10 @@ public class StudentRecordSystem {
 
                 System.out.print("Enter Email: ");
                 String email = readNonEmptyLine();
+                if (uniqueness.isEmailTaken(email)) {
+                    System.out.println("A student with this email already exists.");
+                    return;
+                }
 
                 System.out.print("Enter Course: ");
                 String course = readNonEmptyLine();
@@ -202,7 +993,10 @@ public class StudentRecordSystem {
                 t.join();
 
                 Student s = new Student(roll, name, email, course, marks);
+                uniqueness.add(s);
                 studentMap.put(roll, s);
+                ledger.record(roll, s.getMarks(), MarksLedger.now());
+                publish(ChangeType.ADD, roll, null, s.copy());
                 System.out.println("Student added successfully.");
 
             } catch (InputMismatchException ime) {
@@ -217,14 +1011,15 @@ public class StudentRecordSystem {
 
         @Override
         public void deleteStudent() {
+            if (rejectIfReadOnly()) return;
             System.out.print("Delete by (1) Roll No or (2) Name? Enter 1 or 2: ");
             int choice = readInt();
-            boolean removed = false;
+            Student removed = null;
 
             if (choice == 1) {
                 System.out.print("Enter Roll No to delete: ");
                 int roll = readInt();
-                if (studentMap.remove(roll) != null) removed = true;
+                removed = studentMap.remove(roll);
             } else {
                 sc.nextLine();
                 System.out.print("Enter Name to delete (exact match): ");
@@ -234,19 +1029,24 @@ public class StudentRecordSystem {
                     Map.Entry<Integer, Student> e = it.next();
                     if (e.getValue().getName().equalsIgnoreCase(name)) {
                         it.remove();
-                        removed = true;
+                        removed = e.getValue();
                         // do not break: remove first match only? assignment deletes by name -> remove first matching
                         break;
                     }
                 }
             }
 
-            if (removed) System.out.println("Student record deleted.");
-            else System.out.println("Student not found.");
+            if (removed != null) {
+                uniqueness.remove(removed);
+                ledger.forget(removed.getRollNo());
+                publish(ChangeType.DELETE, removed.getRollNo(), removed.copy(), null);
+                System.out.println("Student record deleted.");
+            } else System.out.println("Student not found.");
         }
 
         @Override
         public void updateStudent() {
+            if (rejectIfReadOnly()) return;
             System.out.print("Enter Roll No to update: ");
             int roll = readInt();
             Student s = studentMap.get(roll);
@@ -258,6 +1058,7 @@ public class StudentRecordSystem {
             System.out.println("Current details:");
             s.displayDetails();
             sc.nextLine();
+            Student before = s.copy();
 
             try {
                 System.out.print("Enter new Name (leave blank to keep): ");
@@ -266,7 +1067,16 @@ public class StudentRecordSystem {
 
                 System.out.print("Enter new Email (leave blank to keep): ");
                 String email = sc.nextLine();
-                if (!email.trim().isEmpty()) s.setEmail(email.trim());
+                if (!email.trim().isEmpty()) {
+                    if (UniquenessIndex.foldEmail(email).equals(UniquenessIndex.foldEmail(s.getEmail()))) {
+                        s.setEmail(email.trim());
+                    } else if (uniqueness.isEmailTaken(email)) {
+                        System.out.println("Another student already uses that email; keeping previous email.");
+                    } else {
+                        uniqueness.changeEmail(s.getEmail(), email.trim());
+                        s.setEmail(email.trim());
+                    }
+                }
 
                 System.out.print("Enter new Course (leave blank to keep): ");
                 String course = sc.nextLine();
@@ -276,7 +1086,10 @@ public class StudentRecordSystem {
                 String marksLine = sc.nextLine().trim();
                 if (!marksLine.isEmpty()) {
                     double marks = Double.parseDouble(marksLine);
-                    if (marks >= 0 && marks <= 100) s.setMarks(marks);
+                    if (marks >= 0 && marks <= 100) {
+                        s.setMarks(marks);
+                        ledger.record(roll, s.getMarks(), MarksLedger.now());
+                    }
                     else System.out.println("Invalid marks; keeping previous marks.");
                 }
 
@@ -285,6 +1098,9 @@ public class StudentRecordSystem {
             } catch (NumberFormatException nfe) {
                 System.out.println("Invalid number format. Update aborted.");
             }
+
+            // fields set before an aborted marks entry are kept, so publish whatever changed
+            if (!before.toCSV().equals(s.toCSV())) publish(ChangeType.UPDATE, roll, before, s.copy());
         }
 
         @Override
@@ -345,6 +1161,82 @@ public class StudentRecordSystem {
             }
         }
 
+        public void marksHistoryMenu() {
+            long recorded = ledger.totalChanges();
+            if (recorded > 0) {
+                System.out.printf("History holds %d change(s) in %d bytes (%.1f bytes/change)%n",
+                        recorded, ledger.totalBytes(), (double) ledger.totalBytes() / recorded);
+            }
+            System.out.println("(1) Marks history of a student");
+            System.out.println("(2) Marks and grade of a student as of a date");
+            System.out.println("(3) All students sorted by marks as of a date");
+            System.out.print("Enter 1, 2 or 3: ");
+            int choice = readInt();
+            try {
+                if (choice == 1 || choice == 2) {
+                    System.out.print("Enter Roll No: ");
+                    int roll = readInt();
+                    MarksHistory h = ledger.get(roll);
+                    if (h == null) throw new StudentNotFoundException("No marks history for roll " + roll + ".");
+                    if (choice == 1) {
+                        System.out.println("Current marks: " + h.getLatestMarks() + " (" + h.getCount()
+                                + " change(s) stored in " + h.getSizeInBytes() + " bytes)");
+                        System.out.print("From date (yyyy-mm-dd, blank for beginning): ");
+                        sc.nextLine();
+                        String from = sc.nextLine().trim();
+                        System.out.print("To date (yyyy-mm-dd, blank for today): ");
+                        String to = sc.nextLine().trim();
+                        long fromSec = from.isEmpty() ? Long.MIN_VALUE : startOfDay(from);
+                        long toSec = to.isEmpty() ? Long.MAX_VALUE : endOfDay(to);
+                        List<MarkChange> changes = h.changesBetween(fromSec, toSec);
+                        if (changes.isEmpty()) System.out.println("No marks changes in that window.");
+                        for (MarkChange c : changes) {
+                            LocalDateTime when = LocalDateTime.ofInstant(Instant.ofEpochSecond(c.getTime()), ZoneId.systemDefault());
+                            System.out.println(when + "  " + c.getMarks());
+                        }
+                    } else {
+                        System.out.print("As of date (yyyy-mm-dd): ");
+                        sc.nextLine();
+                        double m = h.marksAsOf(endOfDay(sc.nextLine().trim()));
+                        if (Double.isNaN(m)) {
+                            System.out.println("No marks recorded by that date.");
+                        } else {
+                            System.out.println("Marks   : " + m);
+                            System.out.println("Grade   : " + Student.gradeFor(m));
+                        }
+                    }
+                } else {
+                    System.out.print("As of date (yyyy-mm-dd): ");
+                    sc.nextLine();
+                    List<Student> list = ledger.snapshotAsOf(studentMap.values(), endOfDay(sc.nextLine().trim()));
+                    if (list.isEmpty()) {
+                        System.out.println("No students had marks by that date.");
+                        return;
+                    }
+                    list.sort((a, b) -> Double.compare(b.getMarks(), a.getMarks()));
+                    double total = 0;
+                    for (Student s : list) {
+                        System.out.println("-----");
+                        s.displayDetails();
+                        total += s.getMarks();
+                    }
+                    System.out.printf("-----%nStudents: %d, average marks: %.2f%n", list.size(), total / list.size());
+                }
+            } catch (StudentNotFoundException snfe) {
+                System.out.println(snfe.getMessage());
+            } catch (DateTimeParseException dtpe) {
+                System.out.println("Invalid date; use yyyy-mm-dd.");
+            }
+        }
+
+        private static long startOfDay(String date) {
+            return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+        }
+
+        private static long endOfDay(String date) {
+            return LocalDate.parse(date).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toEpochSecond() - 1;
+        }
+
         // -----------------
         // Helper input methods
         // -----------------
@@ -386,13 +1278,839 @@ public class StudentRecordSystem {
         }
     }
 
+    // ------------------------------
+    // Report cards: parallel rendering, gather-written with FileChannel
+    // ------------------------------
+
+    // Reusable byte buffers so rendering does not allocate per student
+    public static class BufferPool {
+        private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        private final int bufferSize;
+
+        public BufferPool(int bufferSize) { this.bufferSize = bufferSize; }
+
+        public ByteBuffer acquire() {
+            ByteBuffer b = free.poll();
+            return b != null ? b.clear() : ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        public void release(ByteBuffer b) {
+            if (b.capacity() == bufferSize) free.offer(b);
+        }
+    }
+
+    // Prints how far a long job has got once a second until interrupted
+    public static class ProgressReporter implements Runnable {
+        private final String label;
+        private final AtomicLong done;
+        private final long total;
+
+        public ProgressReporter(String label, AtomicLong done, long total) {
+            this.label = label;
+            this.done = done;
+            this.total = total;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    long n = done.get();
+                    double secs = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%s: %d/%d (%.0f/s)%n", label, n, total, n / secs);
+                }
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    /**
+     * Writes one report card per student, or one file per course, with marks,
+     * grade and rank within the course. Courses are processed in parallel on a
+     * fork-join pool; within a course, ranks are computed once after a single sort
+     * and cards are rendered in parallel chunks into pooled buffers, then written
+     * with FileChannel gather writes.
+     */
+    public static class ReportCardGenerator {
+        public enum Layout { PER_STUDENT, PER_COURSE }
+
+        private static final int CHUNK = 512;          // cards per rendering task
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final Path outDir;
+        private final Layout layout;
+        private final ForkJoinPool pool;
+        private final BufferPool buffers = new BufferPool(BUFFER_SIZE);
+        private final AtomicLong cards = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final ThreadLocal<CharsetEncoder> encoder =
+                // same charset as students.txt; like FileWriter, unmappable chars become '?'
+                ThreadLocal.withInitial(() -> FILE_CHARSET.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        private final ThreadLocal<StringBuilder> text = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+        public ReportCardGenerator(Path outDir, Layout layout, ForkJoinPool pool) {
+            this.outDir = outDir;
+            this.layout = layout;
+            this.pool = pool;
+        }
+
+        public void generate(Collection<Student> roster) throws IOException {
+            Map<String, List<Student>> byCourse = new HashMap<>();
+            for (Student s : roster) {
+                byCourse.computeIfAbsent(s.getCourse(), c -> new ArrayList<>()).add(s.copy());
+            }
+            Map<String, String> names = fileNames(byCourse.keySet());
+            // course names are user input; never let one resolve outside outDir
+            Path root = outDir.toAbsolutePath().normalize();
+            for (String name : names.values()) {
+                Path p = root.resolve(name).normalize();
+                if (!p.startsWith(root) || p.equals(root)) throw new IOException("Unsafe report file name: " + name);
+            }
+            Files.createDirectories(outDir);
+
+            cards.set(0);
+            bytes.set(0);
+            Thread progress = new Thread(new ProgressReporter("Report cards", cards, roster.size()));
+            progress.setDaemon(true);
+            progress.start();
+            long start = System.nanoTime();
+            try {
+                List<CourseTask> tasks = new ArrayList<>();
+                for (Map.Entry<String, List<Student>> e : byCourse.entrySet()) {
+                    tasks.add(new CourseTask(names.get(e.getKey()), e.getValue()));
+                }
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() { invokeAll(tasks); }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                progress.interrupt();
+            }
+            double secs = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+            System.out.printf("Wrote %d report card(s) for %d course(s) to %s in %.2f s (%.0f cards/s, %.1f MB/s)%n",
+                    cards.get(), byCourse.size(), outDir, secs, cards.get() / secs, bytes.get() / secs / 1e6);
+        }
+
+        // names made only of dots ("." and "..") would point at outDir or its parent
+        private static String sanitize(String s) {
+            String safe = s.replaceAll("[^A-Za-z0-9_.-]", "_");
+            return safe.matches("\\.*") ? "_course" : safe;
+        }
+
+        /**
+         * A distinct file name per course. Courses that sanitise to the same name
+         * (ignoring case, for case-insensitive file systems) get a short hash of the
+         * raw course name appended, so no two tasks ever write the same path.
+         */
+        static Map<String, String> fileNames(Collection<String> courses) {
+            Map<String, List<String>> bySafe = new TreeMap<>();
+            for (String c : new TreeSet<>(courses)) {
+                bySafe.computeIfAbsent(sanitize(c).toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(c);
+            }
+            Map<String, String> names = new HashMap<>();
+            Set<String> used = new HashSet<>();
+            for (List<String> group : bySafe.values()) {
+                for (String c : group) {
+                    String name = sanitize(c);
+                    if (group.size() > 1) name += "_" + Integer.toHexString(c.hashCode());
+                    String unique = name;
+                    for (int n = 2; !used.add(unique.toLowerCase(Locale.ROOT)); n++) unique = name + "_" + n;
+                    names.put(c, unique);
+                }
+            }
+            return names;
+        }
+
+        @SuppressWarnings("serial")
+        private class CourseTask extends RecursiveAction {
+            private final String fileName;
+            private final List<Student> students;
+
+            CourseTask(String fileName, List<Student> students) {
+                this.fileName = fileName;
+                this.students = students;
+            }
+
+            @Override
+            protected void compute() {
+                students.sort((a, b) -> Double.compare(b.getMarks(), a.getMarks()));
+                int n = students.size();
+                int[] rank = new int[n];
+                for (int i = 0; i < n; i++) {
+                    // equal marks share a rank (1, 2, 2, 4, ...)
+                    rank[i] = (i > 0 && students.get(i).getMarks() == students.get(i - 1).getMarks()) ? rank[i - 1] : i + 1;
+                }
+
+                try {
+                    if (layout == Layout.PER_STUDENT) {
+                        Path dir = outDir.resolve(fileName);
+                        Files.createDirectories(dir);
+                        List<ChunkTask> chunks = new ArrayList<>();
+                        for (int from = 0; from < n; from += CHUNK) {
+                            chunks.add(new ChunkTask(students, rank, from, Math.min(n, from + CHUNK), dir, null));
+                        }
+                        invokeAll(chunks);
+                    } else {
+                        writeCourseFile(rank);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            // Chunks render in parallel, a window at a time, and are appended in rank order
+            private void writeCourseFile(int[] rank) throws IOException {
+                int n = students.size();
+                int window = Math.max(1, pool.getParallelism());
+                Path file = outDir.resolve(fileName + ".txt");
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (int from = 0; from < n; from += CHUNK * window) {
+                        List<ChunkTask> chunks = new ArrayList<>();
+                        for (int f = from; f < Math.min(n, from + CHUNK * window); f += CHUNK) {
+                            ChunkTask t = new ChunkTask(students, rank, f, Math.min(n, f + CHUNK), null, new ArrayList<>());
+                            chunks.add(t);
+                            t.fork();
+                        }
+                        for (ChunkTask t : chunks) {
+                            t.join();
+                            gatherWrite(ch, t.rendered.toArray(new ByteBuffer[0]));
+                            for (ByteBuffer b : t.rendered) buffers.release(b);
+                        }
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("serial")
+        private class ChunkTask extends RecursiveAction {
+            private final List<Student> ranked;
+            private final int[] rank;
+            private final int from, to;
+            private final Path dir;                  // PER_STUDENT: write each card here
+            private final List<ByteBuffer> rendered; // PER_COURSE: filled buffers, in order
+
+            ChunkTask(List<Student> ranked, int[] rank, int from, int to, Path dir, List<ByteBuffer> rendered) {
+                this.ranked = ranked;
+                this.rank = rank;
+                this.from = from;
+                this.to = to;
+                this.dir = dir;
+                this.rendered = rendered;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    List<ByteBuffer> card = new ArrayList<>();
+                    ByteBuffer buf = dir == null ? buffers.acquire() : null;
+                    for (int i = from; i < to; i++) {
+                        Student s = ranked.get(i);
+                        CharSequence text = render(s, rank[i], ranked.size());
+                        if (dir != null) {
+                            // a card larger than one buffer spills into more and is gather-written
+                            buf = encode(text, buffers.acquire(), card);
+                            buf.flip();
+                            card.add(buf);
+                            try (FileChannel ch = FileChannel.open(dir.resolve(s.getRollNo() + ".txt"),
+                                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                                gatherWrite(ch, card.toArray(new ByteBuffer[0]));
+                            } finally {
+                                for (ByteBuffer b : card) buffers.release(b);
+                                card.clear();
+                            }
+                        } else {
+                            buf = encode(text, buf, rendered);
+                        }
+                        cards.incrementAndGet();
+                    }
+                    if (dir == null) {
+                        buf.flip();
+                        rendered.add(buf);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private CharSequence render(Student s, int rank, int classSize) {
+            StringBuilder sb = text.get();
+            sb.setLength(0);
+            sb.append("===== Report Card =====\n")
+              .append("Roll No : ").append(s.getRollNo()).append('\n')
+              .append("Name    : ").append(s.getName()).append('\n')
+              .append("Email   : ").append(s.getEmail()).append('\n')
+              .append("Course  : ").append(s.getCourse()).append('\n')
+              .append("Marks   : ").append(s.getMarks()).append('\n')
+              .append("Grade   : ").append(s.getGrade()).append('\n')
+              .append("Rank    : ").append(rank).append(" of ").append(classSize).append("\n\n");
+            return sb;
+        }
+
+        /**
+         * Encode text into buf. Whenever buf fills up it is flipped onto full and
+         * encoding continues in a fresh pooled buffer; the buffer in use at the end
+         * is returned, still in write mode.
+         */
+        private ByteBuffer encode(CharSequence text, ByteBuffer buf, List<ByteBuffer> full) {
+            CharsetEncoder enc = encoder.get().reset();
+            CharBuffer in = CharBuffer.wrap(text);
+            while (enc.encode(in, buf, true).isOverflow()) {
+                buf.flip();
+                full.add(buf);
+                buf = buffers.acquire();
+            }
+            while (enc.flush(buf).isOverflow()) {
+                buf.flip();
+                full.add(buf);
+                buf = buffers.acquire();
+            }
+            return buf;
+        }
+
+        private void gatherWrite(FileChannel ch, ByteBuffer... bufs) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer b : bufs) remaining += b.remaining();
+            bytes.addAndGet(remaining);
+            while (remaining > 0) remaining -= ch.write(bufs);
+        }
+    }
+
+    // ------------------------------
+    // Roster diff / merge between two students.txt files
+    // ------------------------------
+
+    /**
+     * Compares two roster files without loading either one whole. Both are
+     * streamed once and hash-partitioned by rollNo into spill files (skipped when
+     * they fit the memory budget); partitions are then diffed in parallel, only
+     * as many at once as fit in the budget together. Records are matched by rollNo
+     * and compared by their normalised CSV.
+     *
+     * Diff output lines: "+ csv" added, "- csv" removed, "< old" / "> new" changed.
+     * The optional merge output is a students.txt with the new file's records,
+     * plus the removed ones if keepRemoved is set.
+     */
+    public static class RosterDiff {
+        // split keeps a writer open per partition for each input, so this bounds
+        // both open files (2 x 256, under the usual ulimit of 1024) and writer buffers
+        private static final int MAX_PARTITIONS = 256;
+
+        private final Path oldFile;
+        private final Path newFile;
+        private final ForkJoinPool pool;
+        private final long memoryBudget;
+
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong removed = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong malformed = new AtomicLong();
+
+        public RosterDiff(Path oldFile, Path newFile, ForkJoinPool pool) {
+            this(oldFile, newFile, pool, Runtime.getRuntime().maxMemory() / 4);
+        }
+
+        public RosterDiff(Path oldFile, Path newFile, ForkJoinPool pool, long memoryBudget) {
+            this.oldFile = oldFile;
+            this.newFile = newFile;
+            this.pool = pool;
+            this.memoryBudget = memoryBudget;
+        }
+
+        public long getAdded() { return added.get(); }
+        public long getRemoved() { return removed.get(); }
+        public long getChanged() { return changed.get(); }
+        public long getUnchanged() { return unchanged.get(); }
+        public long getMalformed() { return malformed.get(); }
+
+        public void run(Path diffOut, Path mergeOut, boolean keepRemoved) throws IOException {
+            // a record costs several times its file size once it is a String in a HashMap
+            long inMemory = (Files.size(oldFile) + Files.size(newFile)) * 6;
+            int partitions = inMemory <= memoryBudget ? 1
+                    : (int) Math.min(MAX_PARTITIONS, Math.max(pool.getParallelism(), 2 * ((inMemory + memoryBudget - 1) / memoryBudget)));
+            // diff only as many partitions at once as fit in the budget together
+            long perPartition = Math.max(1, inMemory / partitions);
+            int concurrency = (int) Math.max(1, Math.min(pool.getParallelism(), memoryBudget / perPartition));
+
+            Path tmp = Files.createTempDirectory("rosterdiff");
+            try {
+                Path[] oldParts, newParts;
+                if (partitions == 1) {
+                    oldParts = new Path[] { oldFile };
+                    newParts = new Path[] { newFile };
+                } else {
+                    oldParts = partFiles(tmp, "old", partitions);
+                    newParts = partFiles(tmp, "new", partitions);
+                    pool.invoke(task(() -> ForkJoinTask.invokeAll(
+                            task(() -> split(oldFile, oldParts)),
+                            task(() -> split(newFile, newParts)))));
+                }
+
+                Path[] diffParts = partFiles(tmp, "diff", partitions);
+                Path[] mergeParts = mergeOut == null ? null : partFiles(tmp, "merge", partitions);
+                AtomicInteger next = new AtomicInteger();
+                List<RecursiveAction> workers = new ArrayList<>();
+                for (int w = 0; w < concurrency; w++) {
+                    workers.add(task(() -> {
+                        for (int i; (i = next.getAndIncrement()) < partitions; ) {
+                            diffPartition(oldParts[i], newParts[i], diffParts[i],
+                                    mergeParts == null ? null : mergeParts[i], keepRemoved);
+                        }
+                    }));
+                }
+                pool.invoke(task(() -> ForkJoinTask.invokeAll(workers)));
+
+                concat(diffParts, diffOut);
+                if (mergeOut != null) concat(mergeParts, mergeOut);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(tmp)) {
+                    for (Path f : ds) Files.deleteIfExists(f);
+                }
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private interface IOAction { void run() throws IOException; }
+
+        private static RecursiveAction task(IOAction action) {
+            return new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        action.run();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        private static Path[] partFiles(Path dir, String prefix, int n) {
+            Path[] parts = new Path[n];
+            for (int i = 0; i < n; i++) parts[i] = dir.resolve(prefix + "-" + i);
+            return parts;
+        }
+
+        private static int partitionOf(int roll, int partitions) {
+            return (int) ((BloomFilter.mix(roll) & Long.MAX_VALUE) % partitions);
+        }
+
+        // Route every line to its partition, reading only the roll number
+        private void split(Path in, Path[] parts) throws IOException {
+            BufferedWriter[] out = new BufferedWriter[parts.length];
+            try (BufferedReader br = openReader(in)) {
+                for (int i = 0; i < parts.length; i++) {
+                    out[i] = openWriter(parts[i]);
+                }
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    int comma = line.indexOf(',');
+                    int roll;
+                    try {
+                        roll = Integer.parseInt((comma < 0 ? line : line.substring(0, comma)).trim());
+                    } catch (NumberFormatException e) {
+                        malformed.incrementAndGet();
+                        continue;
+                    }
+                    BufferedWriter w = out[partitionOf(roll, parts.length)];
+                    w.write(line);
+                    w.newLine();
+                }
+            } finally {
+                for (BufferedWriter w : out) if (w != null) w.close();
+            }
+        }
+
+        // roll -> normalised CSV, in file order; a later line for the same roll wins, as in loadFromFile
+        private Map<Integer, String> readPartition(Path part) throws IOException {
+            Map<Integer, String> records = new LinkedHashMap<>();
+            try (BufferedReader br = openReader(part)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    Student s = Student.fromCSV(line);
+                    if (s == null) {
+                        malformed.incrementAndGet();
+                        continue;
+                    }
+                    records.put(s.getRollNo(), s.toCSV());
+                }
+            }
+            return records;
+        }
+
+        private void diffPartition(Path oldPart, Path newPart, Path diffPart, Path mergePart,
+                                   boolean keepRemoved) throws IOException {
+            Map<Integer, String> older = readPartition(oldPart);
+            Map<Integer, String> newer = readPartition(newPart);
+            try (BufferedWriter diff = openWriter(diffPart);
+                 BufferedWriter merge = mergePart == null ? null : openWriter(mergePart)) {
+                for (Map.Entry<Integer, String> e : newer.entrySet()) {
+                    String now = e.getValue();
+                    String before = older.remove(e.getKey());
+                    if (before == null) {
+                        diff.write("+ " + now);
+                        diff.newLine();
+                        added.incrementAndGet();
+                    } else if (!before.equals(now)) {
+                        diff.write("< " + before);
+                        diff.newLine();
+                        diff.write("> " + now);
+                        diff.newLine();
+                        changed.incrementAndGet();
+                    } else {
+                        unchanged.incrementAndGet();
+                    }
+                    if (merge != null) {
+                        merge.write(now);
+                        merge.newLine();
+                    }
+                }
+                for (String gone : older.values()) {
+                    diff.write("- " + gone);
+                    diff.newLine();
+                    removed.incrementAndGet();
+                    if (merge != null && keepRemoved) {
+                        merge.write(gone);
+                        merge.newLine();
+                    }
+                }
+            }
+        }
+
+        private static void concat(Path[] parts, Path out) throws IOException {
+            try (FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Path p : parts) {
+                    try (FileChannel src = FileChannel.open(p, StandardOpenOption.READ)) {
+                        long pos = 0, size = src.size();
+                        while (pos < size) pos += src.transferTo(pos, size - pos, dst);
+                    }
+                }
+            }
+        }
+    }
+
+    // --diff <old> <new> <diffOut> [--merge <out>] [--keep-removed]
+    private static void runDiff(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: --diff <old file> <new file> <diff output> [--merge <merged output>] [--keep-removed]");
+            return;
+        }
+        Path mergeOut = null;
+        boolean keepRemoved = false;
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("--merge") && i + 1 < args.length) mergeOut = Paths.get(args[++i]);
+            else if (args[i].equals("--keep-removed")) keepRemoved = true;
+        }
+
+        RosterDiff diff = new RosterDiff(Paths.get(args[1]), Paths.get(args[2]), ForkJoinPool.commonPool());
+        long start = System.nanoTime();
+        try {
+            diff.run(Paths.get(args[3]), mergeOut, keepRemoved);
+        } catch (CharacterCodingException e) {
+            System.out.println("Diff failed: an input file is not valid " + FILE_CHARSET + " text.");
+            return;
+        } catch (IOException e) {
+            System.out.println("Diff failed: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Added: %d, removed: %d, changed: %d, unchanged: %d, malformed lines skipped: %d (%.2f s)%n",
+                diff.getAdded(), diff.getRemoved(), diff.getChanged(), diff.getUnchanged(), diff.getMalformed(),
+                (System.nanoTime() - start) / 1e9);
+        System.out.println("Diff written to " + args[3] + (mergeOut != null ? "; merged roster written to " + mergeOut : ""));
+    }
+
+    // ------------------------------
+    // Replication: primary ships its change feed to read-only followers
+    // ------------------------------
+    //
+    // Wire format, one UTF-8 line per message:
+    //   follower -> primary : SYNC <epoch> <lastAppliedSeq>
+    //   primary -> follower : SNAP <epoch> <seq> <count>  followed by <count> CSV lines
+    //                         TAIL <epoch>                 (resume; no snapshot needed)
+    //                         EV <seq> ADD|UPDATE <csv>
+    //                         EV <seq> DELETE <roll>
+    //                         HB <lastPublishedSeq>
+
+    public static class ReplicationServer implements Runnable {
+        private final StudentManager manager;
+        private final int port;
+        private final InetAddress bindAddress;
+        // changes on every primary start, so followers know their sequence numbers are stale
+        private final long epoch = System.currentTimeMillis();
+
+        /** Serve followers on this machine only */
+        public ReplicationServer(StudentManager manager, int port) {
+            this(manager, port, InetAddress.getLoopbackAddress());
+        }
+
+        /**
+         * Serve followers on the given address. There is no authentication, so
+         * anything that can reach a non-loopback address can read the roster.
+         */
+        public ReplicationServer(StudentManager manager, int port, InetAddress bindAddress) {
+            this.manager = manager;
+            this.port = port;
+            this.bindAddress = bindAddress;
+        }
+
+        @Override
+        public void run() {
+            try (ServerSocket server = new ServerSocket(port, 50, bindAddress)) {
+                System.out.println("Replication primary listening on " + bindAddress.getHostAddress() + ":" + port);
+                while (!Thread.currentThread().isInterrupted()) {
+                    Socket socket = server.accept();
+                    Thread t = new Thread(new ReplicationSession(socket), "replication-session");
+                    t.setDaemon(true);
+                    t.start();
+                }
+            } catch (IOException e) {
+                System.out.println("Replication server stopped: " + e.getMessage());
+            }
+        }
+
+        private class ReplicationSession implements Runnable {
+            private final Socket socket;
+
+            ReplicationSession(Socket socket) { this.socket = socket; }
+
+            @Override
+            public void run() {
+                ChangeFeed feed = manager.getChangeFeed();
+                ChangeFeed.Subscription sub = null;
+                try (Socket s = socket;
+                     BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                     BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+
+                    String[] hello = String.valueOf(in.readLine()).split(" ");
+                    if (hello.length < 3 || !hello[0].equals("SYNC")) return;
+                    long followerEpoch = Long.parseLong(hello[1]);
+                    long lastApplied = Long.parseLong(hello[2]);
+
+                    // coalescing keeps a slow follower from stalling the primary; applying
+                    // a coalesced event still leaves the follower with the latest values
+                    if (followerEpoch == epoch) sub = feed.subscribeFrom(lastApplied + 1, Backpressure.COALESCE);
+                    if (sub != null) {
+                        out.write("TAIL " + epoch);
+                        out.newLine();
+                    } else {
+                        // subscribe before copying: anything written during the copy is
+                        // replayed afterwards, and replaying is idempotent
+                        sub = feed.subscribe(Backpressure.COALESCE);
+                        long snapSeq = feed.getPublishedCount() - 1;
+                        List<Student> snapshot = new ArrayList<>(manager.getStudentMap().values());
+                        out.write("SNAP " + epoch + " " + snapSeq + " " + snapshot.size());
+                        out.newLine();
+                        for (Student st : snapshot) {
+                            out.write(st.toCSV());
+                            out.newLine();
+                        }
+                    }
+                    out.flush();
+
+                    while (!s.isClosed()) {
+                        List<ChangeEvent> batch = sub.poll(256, 500);
+                        for (ChangeEvent e : batch) {
+                            out.write("EV " + e.getSeq() + " " + e.getType() + " "
+                                    + (e.getType() == ChangeType.DELETE ? String.valueOf(e.getRollNo()) : e.getAfter().toCSV()));
+                            out.newLine();
+                        }
+                        out.write("HB " + (feed.getPublishedCount() - 1));
+                        out.newLine();
+                        out.flush();
+                    }
+                } catch (IOException | NumberFormatException | InterruptedException e) {
+                    // follower went away or sent garbage; it will reconnect and resync
+                } finally {
+                    if (sub != null) sub.close();
+                }
+            }
+        }
+    }
+
+    public static class ReplicaClient implements Runnable {
+        private final String host;
+        private final int port;
+        private final Map<Integer, Student> roster = new ConcurrentHashMap<>();
+        private volatile long epoch = -1;
+        private volatile long appliedSeq = -1;
+        private volatile long primarySeq = -1;
+        private volatile long lastContact = 0;
+        private volatile boolean connected = false;
+
+        public ReplicaClient(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public Map<Integer, Student> getRoster() { return roster; }
+        public boolean isConnected() { return connected; }
+
+        /** Number of primary changes not yet applied here */
+        public long getLag() { return Math.max(0, primarySeq - appliedSeq); }
+
+        public long getMillisSinceContact() {
+            return lastContact == 0 ? -1 : System.currentTimeMillis() - lastContact;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Socket s = new Socket(host, port);
+                     BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                     BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+                    out.write("SYNC " + epoch + " " + appliedSeq);
+                    out.newLine();
+                    out.flush();
+                    connected = true;
+
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        lastContact = System.currentTimeMillis();
+                        apply(line, in);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // primary unreachable or stream broken; retry below
+                }
+                connected = false;
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+
+        private void apply(String line, BufferedReader in) throws IOException {
+            String[] p = line.split(" ", 4);
+            switch (p[0]) {
+                case "SNAP" -> {
+                    int count = Integer.parseInt(p[3]);
+                    Map<Integer, Student> fresh = new HashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        String csv = in.readLine();
+                        if (csv == null) throw new EOFException("Snapshot cut short");
+                        Student st = Student.fromCSV(csv);
+                        if (st != null) fresh.put(st.getRollNo(), st);
+                    }
+                    roster.keySet().retainAll(fresh.keySet());
+                    roster.putAll(fresh);
+                    epoch = Long.parseLong(p[1]);
+                    appliedSeq = Long.parseLong(p[2]);
+                    primarySeq = Math.max(primarySeq, appliedSeq);
+                }
+                case "TAIL" -> epoch = Long.parseLong(p[1]);
+                case "EV" -> {
+                    long seq = Long.parseLong(p[1]);
+                    if (p[2].equals("DELETE")) {
+                        roster.remove(Integer.parseInt(p[3].trim()));
+                    } else {
+                        Student st = Student.fromCSV(p[3]);
+                        if (st != null) roster.put(st.getRollNo(), st);
+                    }
+                    appliedSeq = seq;
+                    primarySeq = Math.max(primarySeq, seq);
+                }
+                case "HB" -> primarySeq = Long.parseLong(p[1]);
+                default -> { } // unknown message; ignore
+            }
+        }
+    }
+
+    // Read-only menu for a follower process
+    private static void runFollower(String host, int port) {
+        ReplicaClient replica = new ReplicaClient(host, port);
+        Thread t = new Thread(replica, "replica-client");
+        t.setDaemon(true);
+        t.start();
+
+        Scanner sc = new Scanner(System.in);
+        StudentManager manager = new StudentManager(sc, replica.getRoster());
+
+        while (true) {
+            try {
+                System.out.println();
+                System.out.println("===== Follower Student Menu (read-only) =====");
+                System.out.println("1. View All Students");
+                System.out.println("2. Search Student");
+                System.out.println("3. Sort by Marks (descending)");
+                System.out.println("4. Replication Status");
+                System.out.println("5. Exit");
+                System.out.print("Enter choice: ");
+
+                int choice = manager.readInt();
+                System.out.println();
+
+                switch (choice) {
+                    case 1 -> manager.viewAllStudents();
+                    case 2 -> manager.searchStudent();
+                    case 3 -> manager.sortByMarksDescending();
+                    case 4 -> {
+                        System.out.println("Primary     : " + host + ":" + port + (replica.isConnected() ? " (connected)" : " (disconnected)"));
+                        System.out.println("Students    : " + replica.getRoster().size());
+                        System.out.println("Lag         : " + replica.getLag() + " change(s)");
+                        long since = replica.getMillisSinceContact();
+                        System.out.println("Last contact: " + (since < 0 ? "never" : since + " ms ago"));
+                    }
+                    case 5 -> {
+                        System.out.println("Exiting. Goodbye!");
+                        sc.close();
+                        return;
+                    }
+                    default -> System.out.println("Invalid choice. Try again.");
+                }
+            } catch (Exception e) {
+                System.out.println("Unexpected error: " + e.getMessage());
+            }
+        }
+    }
+
     // ------------------------------
     // Main (driver)
+    //   no args                      : standalone
+    //   --primary <port> [bind]      : also serve followers on <port> (loopback unless a bind address is given)
+    //   --follower <port> [host]     : read-only replica of a primary
+    //   --diff <old> <new> <out> ... : compare (and optionally merge) two roster files
     // ------------------------------
     public static void main(String[] args) {
+        if (args.length >= 1 && args[0].equals("--diff")) {
+            runDiff(args);
+            return;
+        }
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        if (args.length >= 3 && args[0].equals("--primary")) {
+            try {
+                bind = InetAddress.getByName(args[2]);
+            } catch (UnknownHostException e) {
+                System.out.println("Unknown bind address: " + args[2]);
+                return;
+            }
+        }
+        if (args.length >= 2 && args[0].equals("--follower")) {
+            runFollower(args.length >= 3 ? args[2] : InetAddress.getLoopbackAddress().getHostAddress(), Integer.parseInt(args[1]));
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
         StudentManager manager = new StudentManager(sc);
 
+        if (args.length >= 2 && args[0].equals("--primary")) {
+            Thread repl = new Thread(new ReplicationServer(manager, Integer.parseInt(args[1]), bind), "replication-server");
+            repl.setDaemon(true);
+            repl.start();
+        }
+
         while (true) {
             try {
                 System.out.println();
@@ -403,7 +2121,10 @@ public class StudentRecordSystem {
                 System.out.println("4. Delete Student");
                 System.out.println("5. Update Student");
                 System.out.println("6. Sort by Marks (descending)");
-                System.out.println("7. Save and Exit");
+                System.out.println("7. Import Students from File");
+                System.out.println("8. Generate Report Cards");
+                System.out.println("9. Marks History");
+                System.out.println("10. Save and Exit");
                 System.out.print("Enter choice: ");
 
                 int choice = manager.readInt(); // uses manager helper for robust int read
@@ -417,6 +2138,13 @@ public class StudentRecordSystem {
                     case 5 -> manager.updateStudent();
                     case 6 -> manager.sortByMarksDescending();
                     case 7 -> {
+                        sc.nextLine();
+                        System.out.print("Enter file path to import: ");
+                        manager.importFromFile(sc.nextLine().trim());
+                    }
+                    case 8 -> manager.generateReportCards();
+                    case 9 -> manager.marksHistoryMenu();
+                    case 10 -> {
                         manager.saveToFile();
                         System.out.println("Exiting. Goodbye!");
                         sc.close();
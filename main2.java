@@ -1,6 +1,9 @@
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 // Custom Exception
 class StudentNotFoundException extends Exception {
@@ -42,6 +45,10 @@ class Student {
         this.marks = marks;
     }
 
+    public String getEmail() {
+        return email;
+    }
+
     public String getGrade() {
         if (marks >= 90) return "A";
         if (marks >= 75) return "B";
@@ -64,6 +71,7 @@ class Student {
 public class StudentManagementSystem {
 
     private Map<Integer, Student> studentDB = new HashMap<>();
+    private Set<String> emails = new HashSet<>(); // lower-cased, for duplicate checks
     private Scanner sc = new Scanner(System.in);
 
     // Add student with validation + exceptions + threading
@@ -71,6 +79,7 @@ public class StudentManagementSystem {
         try {
             System.out.print("Enter Roll No (Integer): ");
             Integer roll = Integer.valueOf(sc.nextLine());
+            if (studentDB.containsKey(roll)) throw new Exception("Roll No " + roll + " already exists!");
 
             System.out.print("Enter Name: ");
             String name = sc.nextLine();
@@ -79,6 +88,8 @@ public class StudentManagementSystem {
             System.out.print("Enter Email: ");
             String email = sc.nextLine();
             if (!email.contains("@")) throw new Exception("Invalid email format!");
+            if (emails.contains(email.trim().toLowerCase(Locale.ROOT)))
+                throw new Exception("Email already registered!");
 
             System.out.print("Enter Course: ");
             String course = sc.nextLine();
@@ -96,6 +107,7 @@ public class StudentManagementSystem {
 
             // Add student to database
             studentDB.put(roll, new Student(roll, name, email, course, marks));
+            emails.add(email.trim().toLowerCase(Locale.ROOT));
 
             System.out.println("Student added successfully!\n");
 
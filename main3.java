@@ -91,9 +91,22 @@ class FileUtil {
 class StudentManager {
 
     ArrayList<Student> students = new ArrayList<>();
+    // keys already in use, so adding never has to scan the list
+    HashSet<Integer> rolls = new HashSet<>();
+    HashSet<String> emails = new HashSet<>();
+
+    static String foldEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
 
     void load(String file) {
         students = FileUtil.readStudents(file);
+        rolls.clear();
+        emails.clear();
+        for (Student s : students) {
+            rolls.add(s.rollNo);
+            emails.add(foldEmail(s.email));
+        }
         System.out.println("\nLoaded students from file:");
         for (Student s : students) {
             System.out.println(s);
@@ -101,7 +114,17 @@ class StudentManager {
     }
 
     void addStudent(Student s) {
+        if (rolls.contains(s.rollNo)) {
+            System.out.println("❌ Roll No already exists!");
+            return;
+        }
+        if (emails.contains(foldEmail(s.email))) {
+            System.out.println("❌ Email already registered!");
+            return;
+        }
         students.add(s);
+        rolls.add(s.rollNo);
+        emails.add(foldEmail(s.email));
         System.out.println("✔ Student added!");
     }
 
@@ -129,8 +152,11 @@ class StudentManager {
     void deleteByName(String name) {
         Iterator<Student> it = students.iterator();
         while (it.hasNext()) {
-            if (it.next().name.equalsIgnoreCase(name)) {
+            Student s = it.next();
+            if (s.name.equalsIgnoreCase(name)) {
                 it.remove();
+                rolls.remove(s.rollNo);
+                emails.remove(foldEmail(s.email));
                 System.out.println("✔ Student deleted!");
                 return;
             }